@@ -5,55 +5,130 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 public class Dlx<T> {
     private static final Logger LOGGER = LogManager.getLogger(Dlx.class);
 
     private final Map<Future<Boolean>, Dlx<T>> forks = new HashMap<>();
-    private final ExecutorService executor;
+    private final int numberOfThreads;
+    private ExecutorService executor = null;
     private final int forkingLevel;
+    private final int portfolioSize;
+    private final long randomSeed;
+    private final long restartUnit;
+    // fields for portfolio workers
+    private final SplittableRandom random;
+    private final AtomicBoolean stopped;
+    private long remainingNodes = Long.MAX_VALUE;
 
-    private final MatrixEntry<T> head;
-    private final List<MatrixEntry<T>> columnHeads;
-    private final List<MatrixEntry<T>> solution;
+    private final MatrixEntry head;
+    private final List<MatrixEntry> columnHeads;
+    private final List<MatrixEntry> rows;
+    private final List<T> choices;
+    // explicit search stack: the covered column and the currently selected row of each level
+    private final MatrixEntry[] selectedColumns;
+    private final MatrixEntry[] selectedRows;
+    private int rootLevel = 0;
+    private int depth = 0;
     private final int maxNumberOfSolutionsToStore;
     private final boolean countAllSolutions;
     private final int statusLogStepWidth;
     private final AtomicReference<State> state = new AtomicReference<>(State.INITIALIZING);
-    private final CountDownLatch solvedLatch = new CountDownLatch(1);
-    private final List<List<T>> solutions = new ArrayList<>();
+    private volatile CountDownLatch solvedLatch = new CountDownLatch(1);
+    private SolutionStore solutions = new SolutionStore();
+    private List<List<T>> resolvedSolutions = List.of();
+    private final SolutionSink solutionSink;
+    private final Supplier<SolutionSink.Buffer> solutionBufferFactory;
+    private SolutionSink.Buffer solutionBuffer = null;
+    // all forks running in the same thread of the executor share one buffer
+    private ThreadLocal<SolutionSink.Buffer> workerSolutionBuffers = null;
+    private int[] solutionRowIndices = new int[0];
     // fields for statistics
     private final int numberOfSecondaryConstraints;
     private int numberOfChoices = 0;
     private int numberOfElements = 0;
     private int solutionsFound = 0;
-    private long[] updates = new long[0];
-    private long[] visitedNodes = new long[0];
+    private final boolean totalsEnabled;
+    private final boolean perLevelEnabled;
+    private final boolean eventsEnabled;
+    private long totalUpdates = 0;
+    private long totalVisitedNodes = 0;
+    private int numberOfLevels = 0;
+    private final long[] updates;
+    private final long[] visitedNodes;
 
     Dlx(int numberOfConstraints, Set<Integer> indicesOfSecondaryConstraints, int forkingLevel, int numberOfThreads,
                int maxNumberOfSolutionsToStore, boolean countAllSolutions, int statusLogStepWidth) {
-        this.forkingLevel = numberOfThreads > 1 ? forkingLevel : -1;
-        this.executor = numberOfThreads > 1 ? Executors.newFixedThreadPool(numberOfThreads) : null;
+        this(numberOfConstraints, indicesOfSecondaryConstraints, forkingLevel, numberOfThreads,
+                maxNumberOfSolutionsToStore, countAllSolutions, statusLogStepWidth, 0, 0, 0, null,
+                StatsLevel.PER_LEVEL);
+    }
+
+    Dlx(int numberOfConstraints, Set<Integer> indicesOfSecondaryConstraints, int forkingLevel, int numberOfThreads,
+        int maxNumberOfSolutionsToStore, boolean countAllSolutions, int statusLogStepWidth, int portfolioSize,
+        long randomSeed, long restartUnit, SolutionSink solutionSink, StatsLevel statsLevel) {
+        this.forkingLevel = numberOfThreads > 1 && portfolioSize == 0 ? forkingLevel : -1;
+        if (portfolioSize > 0) {
+            this.numberOfThreads = portfolioSize;
+        } else {
+            this.numberOfThreads = numberOfThreads > 1 ? numberOfThreads : 0;
+        }
+        this.portfolioSize = portfolioSize;
+        this.randomSeed = randomSeed;
+        this.restartUnit = restartUnit;
+        this.random = null;
+        this.stopped = null;
+        this.solutionSink = solutionSink;
+        this.solutionBufferFactory = solutionSink == null ? null : solutionSink::createBuffer;
         this.maxNumberOfSolutionsToStore = maxNumberOfSolutionsToStore;
         this.countAllSolutions = countAllSolutions;
         this.statusLogStepWidth = statusLogStepWidth;
         this.numberOfSecondaryConstraints = indicesOfSecondaryConstraints.size();
-        head = new MatrixEntry<>();
+        this.totalsEnabled = statsLevel.compareTo(StatsLevel.TOTALS) >= 0;
+        this.perLevelEnabled = statsLevel.compareTo(StatsLevel.PER_LEVEL) >= 0;
+        this.eventsEnabled = statsLevel == StatsLevel.FULL;
+        head = new MatrixEntry();
         columnHeads = new ArrayList<>(numberOfConstraints);
-        solution = new ArrayList<>();
+        rows = new ArrayList<>();
+        choices = new ArrayList<>();
+        // every level of the search tree covers at least one more column
+        selectedColumns = new MatrixEntry[numberOfConstraints];
+        selectedRows = new MatrixEntry[numberOfConstraints];
+        updates = new long[perLevelEnabled ? numberOfConstraints : 0];
+        visitedNodes = new long[perLevelEnabled ? numberOfConstraints : 0];
         createColumnHeads(numberOfConstraints, indicesOfSecondaryConstraints);
     }
 
     // internal constructor for forking
-    private Dlx(MatrixEntry<T> head, List<MatrixEntry<T>> solution, int maxNumberOfSolutionsToStore,
-                boolean countAllSolutions, int statusLogStepWidth, int numberOfElements, int solutionsFound) {
-        this.executor = null;
+    private Dlx(MatrixEntry head, MatrixEntry[] selectedRows, int rootLevel, int maxNumberOfSolutionsToStore,
+                boolean countAllSolutions, int statusLogStepWidth, int numberOfElements, int solutionsFound,
+                long restartUnit, SplittableRandom random, AtomicBoolean stopped, SolutionSink solutionSink,
+                Supplier<SolutionSink.Buffer> solutionBufferFactory, boolean totalsEnabled, boolean perLevelEnabled,
+                boolean eventsEnabled) {
+        this.numberOfThreads = 0;
         this.forkingLevel = -1;
+        this.portfolioSize = 0;
+        this.randomSeed = 0;
+        this.restartUnit = restartUnit;
+        this.random = random;
+        this.stopped = stopped;
+        this.solutionSink = solutionSink;
+        this.solutionBufferFactory = solutionBufferFactory;
         this.head = head;
         this.columnHeads = List.of();
-        this.solution = solution;
+        this.rows = List.of();
+        this.choices = List.of();
+        this.selectedColumns = new MatrixEntry[selectedRows.length];
+        this.selectedRows = selectedRows;
+        this.rootLevel = rootLevel;
+        this.totalsEnabled = totalsEnabled;
+        this.perLevelEnabled = perLevelEnabled;
+        this.eventsEnabled = eventsEnabled;
+        this.updates = new long[perLevelEnabled ? selectedRows.length : 0];
+        this.visitedNodes = new long[perLevelEnabled ? selectedRows.length : 0];
         this.maxNumberOfSolutionsToStore = maxNumberOfSolutionsToStore;
         this.countAllSolutions = countAllSolutions;
         this.statusLogStepWidth = statusLogStepWidth;
@@ -70,22 +145,39 @@ public class Dlx<T> {
     }
 
     /**
-     * Add a new choice (row) to the exact cover matrix.
+     * Add a new choice (row) to the exact cover matrix. Can be called after {@link #solve()} as well to solve a
+     * slightly modified problem without rebuilding the whole matrix. The next call to {@link #solve()} searches
+     * again in that case.
      *
      * @param choiceData        the data that describes the choice. It gets returned by {@link #solve()}, if this choice
      *                          is part of an actual solution.
      * @param constraintIndices strictly increasing list of constraint (column) indices that are set to 1. A row of
      *                          {@code 1 0 0 1 0} would be described by a list of {@code 0, 3}.
+     * @return the row index of the new choice. Row indices are assigned in the order the choices have been added,
+     * starting at {@code 0}. They stay valid until the choice gets removed.
+     * @throws IllegalStateException if the search is running
      */
-    void addChoice(T choiceData, List<Integer> constraintIndices) {
+    public int addChoice(T choiceData, List<Integer> constraintIndices) {
         if (constraintIndices == null || constraintIndices.isEmpty()) {
-            return;
+            throw new IllegalArgumentException("constraintIndices cannot be null or empty");
+        }
+        Objects.requireNonNull(choiceData);
+        if (indicesUnordered(constraintIndices)) {
+            constraintIndices = new ArrayList<>(constraintIndices);
+            constraintIndices.sort(Integer::compareTo);
         }
+        verifyNoDuplicates(constraintIndices);
+        if (constraintIndices.get(0) < 0
+            || constraintIndices.get(constraintIndices.size() - 1) >= columnHeads.size()) {
+            throw new IllegalArgumentException("indices must be between 0 and " + (columnHeads.size() - 1));
+        }
+        prepareModification();
 
-        MatrixEntry<T> firstRowElement = null;
+        int rowIndex = rows.size();
+        MatrixEntry firstRowElement = null;
         for (int columnIndex : constraintIndices) {
-            MatrixEntry<T> columnHead = columnHeads.get(columnIndex);
-            MatrixEntry<T> element = new MatrixEntry<>(choiceData, columnHead);
+            MatrixEntry columnHead = columnHeads.get(columnIndex);
+            MatrixEntry element = new MatrixEntry(rowIndex, columnHead);
             columnHead.insertAbove(element);
             if (firstRowElement != null) {
                 firstRowElement.insertBefore(element);
@@ -93,13 +185,87 @@ public class Dlx<T> {
                 firstRowElement = element;
             }
         }
+        rows.add(firstRowElement);
+        choices.add(choiceData);
         numberOfChoices++;
         numberOfElements += constraintIndices.size();
+        return rowIndex;
+    }
+
+    /**
+     * Remove a choice (row) from the exact cover matrix. Can be called after {@link #solve()} to solve a slightly
+     * modified problem without rebuilding the whole matrix. The next call to {@link #solve()} searches again in that
+     * case. The row indices of all other choices stay the same.
+     *
+     * @param rowIndex the row index of the choice as returned by {@link #addChoice(Object, List)}
+     * @throws IllegalStateException if the search is running
+     */
+    public void removeChoice(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rows.size() || rows.get(rowIndex) == null) {
+            throw new IllegalArgumentException("Row index " + rowIndex + " does not exist");
+        }
+        prepareModification();
+
+        MatrixEntry r = rows.get(rowIndex);
+        MatrixEntry j = r;
+        do {
+            j.removeFromColumn();
+            numberOfElements--;
+            j = j.getRight();
+        } while (j != r);
+        rows.set(rowIndex, null);
+        choices.set(rowIndex, null);
+        numberOfChoices--;
+    }
+
+    private boolean indicesUnordered(List<Integer> constraintIndices) {
+        int lastIndex = Integer.MIN_VALUE;
+        for (Integer index : constraintIndices) {
+            if (index == null) {
+                throw new IllegalArgumentException("indices must not contain null values");
+            }
+            if (lastIndex >= index) {
+                return true;
+            }
+            lastIndex = index;
+        }
+        return false;
+    }
+
+    private void verifyNoDuplicates(List<Integer> constraintIndices) {
+        int lastIndex = -1;
+        for (int index : constraintIndices) {
+            if (index == lastIndex) {
+                throw new IllegalArgumentException("indices must not contain duplicate elements");
+            }
+            lastIndex = index;
+        }
+    }
+
+    // discards the results of the previous search, so the modified matrix gets solved again
+    private void prepareModification() {
+        State current = state.get();
+        if (current == State.SOLVING) {
+            throw new IllegalStateException("The matrix cannot be modified while solving");
+        }
+        if (current == State.SOLVED) {
+            // results returned previously keep referring to the old store
+            solutions = new SolutionStore();
+            solutionsFound = 0;
+            numberOfLevels = 0;
+            totalUpdates = 0;
+            totalVisitedNodes = 0;
+            Arrays.fill(updates, 0);
+            Arrays.fill(visitedNodes, 0);
+            forks.clear();
+            solvedLatch = new CountDownLatch(1);
+            state.set(State.INITIALIZING);
+        }
     }
 
     private void createColumnHeads(int numberOfConstraints, Set<Integer> secondaryConstraints) {
         for (int i = 0; i < numberOfConstraints; i++) {
-            MatrixEntry<T> columnHead = new MatrixEntry<>();
+            MatrixEntry columnHead = new MatrixEntry();
             columnHeads.add(columnHead);
             if (!secondaryConstraints.contains(i)) {
                 head.insertBefore(columnHead);
@@ -109,15 +275,93 @@ public class Dlx<T> {
 
     /**
      * Solves the exact cover problem previously initialized using {@link #builder()} by executing
-     * Donald E. Knuth's algorithm DLX. Executes only once and stores the result.
+     * Donald E. Knuth's algorithm DLX. Executes only once and stores the result until the matrix gets modified using
+     * {@link #addChoice(Object, List)} or {@link #removeChoice(int)}.
+     * <p>
+     *     Solutions are stored as row indices internally. The returned list resolves them to the choice data on each
+     *     access. Use {@link #getSolutionRowIndices()} to avoid that.
+     * </p>
      *
      * @return All solutions up until {@code maxNumberOfSolutionsToStore} that have been found.
+     * @see #getSolutionRowIndices()
      */
     public List<List<T>> solve() {
+        return solve(new int[0]);
+    }
+
+    /**
+     * Solves only the given subproblem of the exact cover problem previously initialized using {@link #builder()}.
+     * The choices of the subproblem are part of every solution that is returned. Executes only once and stores the
+     * result until the matrix gets modified.
+     * <p>
+     *     The subproblem must have been created by {@link #partition(int)} of a {@code Dlx} instance containing the
+     *     same choices in the same order. Search tree levels of the statistics are counted from the root of the whole
+     *     search tree, so the statistics of all subproblems can be combined using {@link Stats#merge(Stats)}.
+     * </p>
+     *
+     * @param subproblem the part of the search tree to explore
+     * @return All solutions of the subproblem up until {@code maxNumberOfSolutionsToStore} that have been found.
+     * @throws IllegalArgumentException if the subproblem has been created from a different matrix
+     */
+    public List<List<T>> solve(Subproblem subproblem) {
+        if (!subproblem.isCreatedFrom(rows.size(), columnHeads.size(), matrixHash())) {
+            throw new IllegalArgumentException("The subproblem has been created for a different matrix");
+        }
+        int[] rowIndices = subproblem.getRowIndices();
+        verifyCompatibleRows(rowIndices);
+        return solve(rowIndices);
+    }
+
+    private void verifyCompatibleRows(int[] rowIndices) {
+        Set<MatrixEntry> coveredColumns = new HashSet<>();
+        for (int rowIndex : rowIndices) {
+            if (rowIndex < 0 || rowIndex >= rows.size() || rows.get(rowIndex) == null) {
+                throw new IllegalArgumentException("Row index " + rowIndex + " does not exist");
+            }
+            MatrixEntry r = rows.get(rowIndex);
+            MatrixEntry j = r;
+            do {
+                if (!coveredColumns.add(j.getColumnHead())) {
+                    throw new IllegalArgumentException("Row " + rowIndex + " conflicts with a previous row");
+                }
+                j = j.getRight();
+            } while (j != r);
+        }
+    }
+
+    private List<List<T>> solve(int[] rowIndices) {
         if (state.compareAndSet(State.INITIALIZING, State.SOLVING)) {
+            SolveEvent solveEvent = null;
+            if (eventsEnabled) {
+                solveEvent = new SolveEvent();
+                solveEvent.begin();
+            }
             try {
                 LOGGER.info("Solving using DLX...");
-                search(0);
+                executor = numberOfThreads > 0 ? Executors.newFixedThreadPool(numberOfThreads) : null;
+                List<SolutionSink.Buffer> workerBuffers = Collections.synchronizedList(new ArrayList<>());
+                if (solutionSink != null && forkingLevel >= 0) {
+                    workerSolutionBuffers = ThreadLocal.withInitial(() -> {
+                        SolutionSink.Buffer buffer = solutionSink.createBuffer();
+                        workerBuffers.add(buffer);
+                        return buffer;
+                    });
+                }
+                for (int i = 0; i < rowIndices.length; i++) {
+                    MatrixEntry r = rows.get(rowIndices[i]);
+                    r.getColumnHead().coverColumnUncounted();
+                    selectRow(r);
+                    selectedColumns[i] = r.getColumnHead();
+                    selectedRows[i] = r;
+                }
+                rootLevel = rowIndices.length;
+                if (portfolioSize > 0) {
+                    searchWithPortfolio();
+                } else {
+                    search();
+                }
+                restoreMatrix();
+                flushSolutions();
 
                 for (Map.Entry<Future<Boolean>, Dlx<T>> entry : forks.entrySet()) {
                     Future<Boolean> future = entry.getKey();
@@ -129,107 +373,432 @@ public class Dlx<T> {
                     Dlx<T> fork = entry.getValue();
                     join(fork);
                 }
+                workerBuffers.forEach(SolutionSink.Buffer::flush);
 
                 LOGGER.info("Found {} solutions", solutionsFound);
+                if (solveEvent != null && solveEvent.shouldCommit()) {
+                    solveEvent.numberOfChoices = numberOfChoices;
+                    solveEvent.subproblemDepth = rowIndices.length;
+                    solveEvent.numberOfSolutions = solutionsFound;
+                    solveEvent.visitedNodes = getTotalVisitedNodes();
+                    solveEvent.commit();
+                }
             } finally {
+                // a failed search must not leave the matrix partly covered, it might get modified and solved again
+                restoreMatrix();
                 if (executor != null) {
                     executor.shutdown();
+                    executor = null;
                 }
+                workerSolutionBuffers = null;
+                resolvedSolutions = resolveSolutions();
                 state.compareAndSet(State.SOLVING, State.SOLVED);
                 solvedLatch.countDown();
             }
         }
 
+        awaitSolved();
+        return resolvedSolutions;
+    }
+
+    private void awaitSolved() {
         try {
             solvedLatch.await();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
+    }
+
+    // captures the result once the search has finished, so modifying the matrix afterwards does not change it
+    private List<List<T>> resolveSolutions() {
+        SolutionStore store = solutions;
+        if (store.size() == 0) {
+            return List.of();
+        }
+        List<T> choiceData = new ArrayList<>(choices);
+        return new AbstractList<>() {
+            @Override
+            public List<T> get(int index) {
+                Objects.checkIndex(index, store.size());
+                List<T> result = new ArrayList<>(store.length(index));
+                for (int i = 0; i < store.length(index); i++) {
+                    result.add(choiceData.get(store.rowIndex(index, i)));
+                }
+                return result;
+            }
 
-        return Collections.unmodifiableList(solutions);
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
-    private Dlx<T> fork() {
-        HashMap<MatrixEntry<T>, MatrixEntry<T>> mapping = new HashMap<>(numberOfElements);
-        HashSet<MatrixEntry<T>> visited = new HashSet<>(numberOfElements);
-        MatrixEntry<T> headCopy = head.copy(mapping, visited);
+    /**
+     * Retrieve the solutions found by {@link #solve()} as row indices as returned by {@link #addChoice(Object, List)}.
+     * They can be resolved using {@link #getChoiceData(int)}. Storing solutions this way only needs four bytes per
+     * choice of a solution. Waits for a running search to finish.
+     *
+     * @return an unmodifiable view of all solutions that have been stored. Each access returns a new array.
+     */
+    public List<int[]> getSolutionRowIndices() {
+        if (state.get() != State.INITIALIZING) {
+            awaitSolved();
+        }
+        return solutions.asList();
+    }
+
+    /**
+     * Retrieve the data that has been passed when adding the choice (row) with the given index.
+     *
+     * @param rowIndex the row index of the choice as returned by {@link #addChoice(Object, List)}
+     */
+    public T getChoiceData(int rowIndex) {
+        return choices.get(rowIndex);
+    }
 
-        List<MatrixEntry<T>> solutionCopy = new ArrayList<>(solution.size());
-        for (MatrixEntry<T> entry : solution) {
-            entry.copy(mapping, visited);
-            solutionCopy.add(mapping.get(entry));
+    /**
+     * Split the search tree at the given depth into independent subproblems. Solving all of them using
+     * {@link #solve(Subproblem)} yields exactly the solutions of {@link #solve()}. The subproblems can be written to
+     * files and solved by separate processes. Subproblems of solutions that are found above the given depth already
+     * are returned as well. The matrix is left unchanged, so this instance can still be solved afterwards.
+     *
+     * @param depth the distance from the root of the search tree where {@code 0} is the root itself.
+     * @return the subproblems in the order the search tree would be explored
+     */
+    public List<Subproblem> partition(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative");
         }
-        return new Dlx<>(headCopy, solutionCopy, maxNumberOfSolutionsToStore, countAllSolutions, statusLogStepWidth,
-                numberOfElements, solutionsFound);
+        if (state.get() != State.INITIALIZING) {
+            throw new IllegalStateException("The search has already been started");
+        }
+        List<Subproblem> subproblems = new ArrayList<>();
+        collectSubproblems(0, depth, matrixHash(), subproblems);
+        return subproblems;
     }
 
-    private void join(Dlx<T> fork) {
-        Stats stats = fork.getStats();
-        List<Long> numberOfUpdates = stats.numberOfUpdates();
-        ensureStatsArraySize(numberOfUpdates.size());
-        for (int i = 0; i < numberOfUpdates.size(); i++) {
-            long updates = numberOfUpdates.get(i);
-            this.updates[i] += updates;
+    private void collectSubproblems(int k, int depth, long matrixHash, List<Subproblem> subproblems) {
+        if (k == depth || head.getRight() == head) {
+            int[] rowIndices = new int[k];
+            for (int i = 0; i < k; i++) {
+                rowIndices[i] = selectedRows[i].getRowIndex();
+            }
+            subproblems.add(new Subproblem(rows.size(), columnHeads.size(), matrixHash, rowIndices));
+            return;
         }
 
-        List<Long> numberOfVisitedNodes = stats.numberOfVisitedNodes();
-        for (int i = 0; i < numberOfVisitedNodes.size(); i++) {
-            long visitedNodes = numberOfVisitedNodes.get(i);
-            this.visitedNodes[i] += visitedNodes;
+        MatrixEntry c = selectNextColumn();
+        c.coverColumnUncounted();
+        for (MatrixEntry r = c.getLower(); r != c; r = r.getLower()) {
+            selectedRows[k] = r;
+            selectRow(r);
+            collectSubproblems(k + 1, depth, matrixHash, subproblems);
+            deselectRow(r);
         }
+        selectedRows[k] = null;
+        c.uncoverColumn();
+    }
 
-        this.solutions.addAll(fork.solutions);
+    // hash of the column indices of all rows including the removed ones, a subproblem refers to rows by their index
+    private long matrixHash() {
+        Map<MatrixEntry, Integer> columnIndices = new IdentityHashMap<>(columnHeads.size());
+        for (int i = 0; i < columnHeads.size(); i++) {
+            columnIndices.put(columnHeads.get(i), i);
+        }
+        long hash = 1;
+        for (MatrixEntry r : rows) {
+            if (r != null) {
+                MatrixEntry j = r;
+                do {
+                    hash = 31 * hash + columnIndices.get(j.getColumnHead());
+                    j = j.getRight();
+                } while (j != r);
+            }
+            // separates the rows, as column indices are never negative
+            hash = 31 * hash - 1;
+        }
+        return hash;
+    }
+
+    private void searchWithPortfolio() {
+        AtomicBoolean portfolioStopped = new AtomicBoolean(false);
+        SplittableRandom seeds = new SplittableRandom(randomSeed);
+        List<Callable<Dlx<T>>> workers = new ArrayList<>(portfolioSize);
+        for (int i = 0; i < portfolioSize; i++) {
+            Dlx<T> worker = fork(rootLevel, seeds.split(), portfolioStopped, null, null);
+            workers.add(worker::runPortfolioWorker);
+        }
+        try {
+            join(executor.invokeAny(workers));
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Runs randomized searches with restarts until a solution has been found, the problem turned out to be
+    // unsolvable or another worker of the portfolio has finished.
+    private Dlx<T> runPortfolioWorker() {
+        for (int run = 1; ; run++) {
+            remainingNodes = restartUnit > 0 ? restartUnit * luby(run) : Long.MAX_VALUE;
+            for (MatrixEntry c = head.getRight(); c != head; c = c.getRight()) {
+                c.shuffleRows(random);
+            }
+            boolean solved = search();
+            if (!solved && !stopped.get() && remainingNodes <= 0) {
+                continue;
+            }
+            if (!stopped.compareAndSet(false, true)) {
+                throw new CancellationException("Another portfolio worker has finished first");
+            }
+            LOGGER.debug("Portfolio worker finished after {} runs", run);
+            return this;
+        }
+    }
+
+    // the sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ... of restart lengths by Luby et al.
+    static long luby(int i) {
+        int k = 1;
+        while ((1L << k) - 1 < i) {
+            k++;
+        }
+        if (i == (1L << k) - 1) {
+            return 1L << (k - 1);
+        }
+        return luby(i - (1 << (k - 1)) + 1);
+    }
+
+    private Dlx<T> fork(int depth) {
+        return fork(depth, null, null, solutionSink,
+                workerSolutionBuffers == null ? null : workerSolutionBuffers::get);
+    }
+
+    // copies the matrix including the selected rows of the levels above depth
+    private Dlx<T> fork(int depth, SplittableRandom random, AtomicBoolean stopped, SolutionSink solutionSink,
+                        Supplier<SolutionSink.Buffer> solutionBufferFactory) {
+        HashMap<MatrixEntry, MatrixEntry> mapping = new HashMap<>(numberOfElements);
+        HashSet<MatrixEntry> visited = new HashSet<>(numberOfElements);
+        MatrixEntry headCopy = head.copy(mapping, visited);
+
+        MatrixEntry[] selectedRowsCopy = new MatrixEntry[selectedRows.length];
+        for (int i = 0; i < depth; i++) {
+            selectedRows[i].copy(mapping, visited);
+            selectedRowsCopy[i] = mapping.get(selectedRows[i]);
+        }
+        return new Dlx<>(headCopy, selectedRowsCopy, depth, maxNumberOfSolutionsToStore, countAllSolutions,
+                statusLogStepWidth, numberOfElements, solutionsFound, restartUnit, random, stopped, solutionSink,
+                solutionBufferFactory, totalsEnabled, perLevelEnabled, eventsEnabled);
+    }
+
+    private void join(Dlx<T> fork) {
+        for (int i = 0; i < fork.numberOfLevels; i++) {
+            this.updates[i] += fork.updates[i];
+            this.visitedNodes[i] += fork.visitedNodes[i];
+        }
+        this.numberOfLevels = Math.max(numberOfLevels, fork.numberOfLevels);
+        this.totalUpdates += fork.totalUpdates;
+        this.totalVisitedNodes += fork.totalVisitedNodes;
+
+        if (solutionSink == null) {
+            this.solutions.addAll(fork.solutions);
+        } else {
+            // solutions of portfolio workers are kept in memory
+            for (int i = 0; i < fork.solutions.size(); i++) {
+                int[] rowIndices = fork.solutions.get(i);
+                getSolutionBuffer().add(rowIndices, rowIndices.length);
+            }
+        }
         this.solutionsFound += fork.solutionsFound;
     }
 
-    private boolean search(int k) {
-        if (head.getRight() == head) {
-            return doSolutionBookkeeping();
+    private boolean searchFork() {
+        ForkSearchEvent event = null;
+        if (eventsEnabled) {
+            event = new ForkSearchEvent();
+            event.begin();
         }
-        ensureStatsArraySize(k + 1);
+        int initialSolutionsFound = solutionsFound;
+        try {
+            return search();
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.level = rootLevel - 1;
+                event.rowIndex = selectedRows[rootLevel - 1].getRowIndex();
+                event.numberOfSolutions = solutionsFound - initialSolutionsFound;
+                event.visitedNodes = getTotalVisitedNodes();
+                event.commit();
+            }
+        }
+    }
+
+    private void emitForkSubmittedEvent(int level, MatrixEntry r) {
+        ForkSubmittedEvent event = new ForkSubmittedEvent();
+        if (event.shouldCommit()) {
+            event.level = level;
+            event.rowIndex = r.getRowIndex();
+            event.commit();
+        }
+    }
 
-        MatrixEntry<T> c = selectNextColumn();
-        updates[k] += c.coverColumn();
-        MatrixEntry<T> r = c.getLower();
-        boolean fork = k == forkingLevel;
+    /*
+     * Explores the search tree below rootLevel without recursion. Level k covers selectedColumns[k] and iterates
+     * selectedRows[k] over its rows, where selectedRows[k] == selectedColumns[k] means that no row has been selected
+     * yet and selectedRows[k] == null means that the level is not in use. The matrix is restored when returning false,
+     * but stays in the state of the last solution when returning true.
+     */
+    private boolean search() {
+        int k = rootLevel;
         int solutionsCountCorrection = 0;
-        while (r != c) {
-            visitedNodes[k]++;
-            solution.add(r);
-            MatrixEntry<T> j = r.getRight();
-            while (j != r) {
-                updates[k] += j.coverColumn();
-                j = j.getRight();
+        boolean descend = true;
+        while (true) {
+            if (descend) {
+                if (head.getRight() == head) {
+                    depth = k;
+                    if (doSolutionBookkeeping()) {
+                        return true;
+                    }
+                    if (--k < rootLevel) {
+                        return false;
+                    }
+                } else {
+                    MatrixEntry c = random == null ? selectNextColumn() : selectRandomNextColumn();
+                    if (perLevelEnabled) {
+                        if (k >= numberOfLevels) {
+                            numberOfLevels = k + 1;
+                        }
+                        updates[k] += c.coverColumn();
+                    } else if (totalsEnabled) {
+                        totalUpdates += c.coverColumn();
+                    } else {
+                        c.coverColumnUncounted();
+                    }
+                    selectedColumns[k] = c;
+                    selectedRows[k] = c;
+                }
             }
-            if (fork) {
-                Dlx<T> forkedDlx = fork();
+
+            // advance to the next row of level k
+            MatrixEntry c = selectedColumns[k];
+            MatrixEntry r = selectedRows[k];
+            if (r != c) {
+                deselectRow(r);
+            }
+            r = r.getLower();
+            if (r == c || isAborted()) {
+                c.uncoverColumn();
+                selectedRows[k] = null;
+                if (k == forkingLevel) {
+                    solutionsFound -= solutionsCountCorrection;
+                    solutionsCountCorrection = 0;
+                }
+                if (--k < rootLevel) {
+                    return false;
+                }
+                descend = false;
+                continue;
+            }
+
+            remainingNodes--;
+            selectedRows[k] = r;
+            if (perLevelEnabled) {
+                visitedNodes[k]++;
+                updates[k] += selectRowCounted(r);
+            } else if (totalsEnabled) {
+                totalVisitedNodes++;
+                totalUpdates += selectRowCounted(r);
+            } else {
+                selectRow(r);
+            }
+            if (k == forkingLevel) {
+                if (eventsEnabled) {
+                    emitForkSubmittedEvent(k, r);
+                }
+                Dlx<T> forkedDlx = fork(k + 1);
                 solutionsCountCorrection += solutionsFound;
-                Future<Boolean> future = executor.submit(() -> forkedDlx.search(k + 1));
+                Future<Boolean> future = executor.submit(forkedDlx::searchFork);
                 forks.put(future, forkedDlx);
-            } else if (search(k + 1)) {
-                return true;
+                descend = false;
+            } else {
+                k++;
+                descend = true;
             }
-            /*r = */solution.remove(solution.size() - 1);
-            //c = r.getColumnHeader();
-            j = r.getLeft();
-            while (j != r) {
-                j.uncoverColumn();
-                j = j.getLeft();
+        }
+    }
+
+    // uncovers the columns of all levels that are still in use, so the matrix can be modified or solved again
+    private void restoreMatrix() {
+        int k = 0;
+        while (k < selectedRows.length && selectedRows[k] != null) {
+            k++;
+        }
+        for (k--; k >= 0; k--) {
+            MatrixEntry c = selectedColumns[k];
+            MatrixEntry r = selectedRows[k];
+            if (r != c) {
+                deselectRow(r);
             }
-            r = r.getLower();
+            c.uncoverColumn();
+            selectedRows[k] = null;
+            selectedColumns[k] = null;
         }
-        c.uncoverColumn();
-        solutionsFound -= solutionsCountCorrection;
+        rootLevel = 0;
+    }
 
-        return false;
+    private SolutionSink.Buffer getSolutionBuffer() {
+        if (solutionBuffer == null) {
+            solutionBuffer = solutionBufferFactory.get();
+        }
+        return solutionBuffer;
+    }
+
+    private void flushSolutions() {
+        if (solutionBuffer != null) {
+            solutionBuffer.flush();
+        }
+    }
+
+    // covers the columns of all other elements in the row of r, assuming the column of r itself is covered already
+    private void selectRow(MatrixEntry r) {
+        MatrixEntry j = r.getRight();
+        while (j != r) {
+            j.coverColumnUncounted();
+            j = j.getRight();
+        }
+    }
+
+    // same as selectRow(r), but returns the number of updates
+    private long selectRowCounted(MatrixEntry r) {
+        long updates = 0;
+        MatrixEntry j = r.getRight();
+        while (j != r) {
+            updates += j.coverColumn();
+            j = j.getRight();
+        }
+        return updates;
+    }
+
+    private void deselectRow(MatrixEntry r) {
+        MatrixEntry j = r.getLeft();
+        while (j != r) {
+            j.uncoverColumn();
+            j = j.getLeft();
+        }
     }
 
     protected boolean doSolutionBookkeeping() {
         if (solutionsFound < maxNumberOfSolutionsToStore) {
-            solutions.add(solution.stream()
-                    .map(MatrixEntry::getData)
-                    .collect(Collectors.toList()));
+            if (solutionRowIndices.length < depth) {
+                solutionRowIndices = new int[depth];
+            }
+            for (int i = 0; i < depth; i++) {
+                solutionRowIndices[i] = selectedRows[i].getRowIndex();
+            }
+            if (solutionSink == null) {
+                solutions.add(solutionRowIndices, depth);
+            } else {
+                getSolutionBuffer().add(solutionRowIndices, depth);
+            }
         }
         solutionsFound++;
         if (solutionsFound % statusLogStepWidth == 0) {
@@ -238,44 +807,64 @@ public class Dlx<T> {
         return !(countAllSolutions || solutionsFound < maxNumberOfSolutionsToStore);
     }
 
-    private void ensureStatsArraySize(int size) {
-        if (updates.length < size) {
-            long[] newUpdates = new long[size];
-            System.arraycopy(updates, 0, newUpdates, 0, updates.length);
-            updates = newUpdates;
-
-            long[] newVisitedNodes = new long[size];
-            System.arraycopy(visitedNodes, 0, newVisitedNodes, 0, visitedNodes.length);
-            visitedNodes = newVisitedNodes;
+    private MatrixEntry selectNextColumn() {
+        MatrixEntry c = head.getRight();
+        MatrixEntry bestMatch = c;
+        int bestRowCount = c.getRowCount();
+        while (c != head) {
+            if (c.getRowCount() < bestRowCount) {
+                bestRowCount = c.getRowCount();
+                bestMatch = c;
+            }
+            c = c.getRight();
         }
+        return bestMatch;
     }
 
-    private MatrixEntry<T> selectNextColumn() {
-        MatrixEntry<T> c = head.getRight();
-        MatrixEntry<T> bestMatch = c;
+    // chooses randomly between columns having the same number of rows
+    private MatrixEntry selectRandomNextColumn() {
+        MatrixEntry c = head.getRight();
+        MatrixEntry bestMatch = c;
         int bestRowCount = c.getRowCount();
+        int numberOfBestMatches = 0;
         while (c != head) {
             if (c.getRowCount() < bestRowCount) {
                 bestRowCount = c.getRowCount();
                 bestMatch = c;
+                numberOfBestMatches = 1;
+            } else if (c.getRowCount() == bestRowCount && random.nextInt(++numberOfBestMatches) == 0) {
+                bestMatch = c;
             }
             c = c.getRight();
         }
         return bestMatch;
     }
 
+    // a restart has been requested or another portfolio worker has finished
+    private boolean isAborted() {
+        return remainingNodes <= 0 || stopped != null && stopped.get();
+    }
+
     /**
      * Retrieve detailed statistics about the problem, the search tree and the solutions that have been found.
      */
     public Stats getStats() {
         return new Stats(numberOfChoices, columnHeads.size() - numberOfSecondaryConstraints,
                 numberOfSecondaryConstraints, numberOfElements, solutionsFound,
-                mapToList(updates), mapToList(visitedNodes)
+                mapToList(updates), mapToList(visitedNodes), getTotalUpdates(), getTotalVisitedNodes()
         );
     }
 
     private List<Long> mapToList(long[] array) {
-        return Arrays.stream(array).boxed().toList();
+        return Arrays.stream(array, 0, numberOfLevels).boxed().toList();
+    }
+
+    private long getTotalUpdates() {
+        return perLevelEnabled ? Arrays.stream(updates, 0, numberOfLevels).sum() : totalUpdates;
+    }
+
+    private long getTotalVisitedNodes() {
+        return perLevelEnabled ? Arrays.stream(visitedNodes, 0, numberOfLevels).sum() : totalVisitedNodes;
     }
 
     private enum State {
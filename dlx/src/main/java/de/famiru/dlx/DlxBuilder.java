@@ -1,6 +1,5 @@
 package de.famiru.dlx;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -9,12 +8,10 @@ import java.util.stream.IntStream;
 
 public class DlxBuilder<T> {
     private final Dlx<T> dlx;
-    private final int numberOfConstraints;
     private boolean building = true;
 
-    private DlxBuilder(Dlx<T> dlx, int numberOfConstraints) {
+    private DlxBuilder(Dlx<T> dlx) {
         this.dlx = dlx;
-        this.numberOfConstraints = numberOfConstraints;
     }
 
     /**
@@ -27,18 +24,6 @@ public class DlxBuilder<T> {
      */
     public DlxBuilder<T> addChoice(T choiceData, List<Integer> constraintIndices) {
         verifyStillBuilding();
-        if (constraintIndices == null || constraintIndices.isEmpty()) {
-            throw new IllegalArgumentException("constraintIndices cannot be null or empty");
-        }
-        if (indicesUnordered(constraintIndices)) {
-            constraintIndices = new ArrayList<>(constraintIndices);
-            constraintIndices.sort(Integer::compareTo);
-        }
-        verifyNoDuplicates(constraintIndices);
-        if (constraintIndices.get(0) < 0
-            || constraintIndices.get(constraintIndices.size() - 1) >= numberOfConstraints) {
-            throw new IllegalArgumentException("indices must be between 0 and " + (numberOfConstraints - 1));
-        }
         dlx.addChoice(choiceData, constraintIndices);
         return this;
     }
@@ -49,30 +34,6 @@ public class DlxBuilder<T> {
         }
     }
 
-    private boolean indicesUnordered(List<Integer> constraintIndices) {
-        int lastIndex = Integer.MIN_VALUE;
-        for (Integer index : constraintIndices) {
-            if (index == null) {
-                throw new IllegalArgumentException("indices must not contain null values");
-            }
-            if (lastIndex >= index) {
-                return true;
-            }
-            lastIndex = index;
-        }
-        return false;
-    }
-
-    private void verifyNoDuplicates(List<Integer> constraintIndices) {
-        int lastIndex = -1;
-        for (int index : constraintIndices) {
-            if (index == lastIndex) {
-                throw new IllegalArgumentException("indices must not contain duplicate elements");
-            }
-            lastIndex = index;
-        }
-    }
-
     /**
      * Finally build the {@link Dlx} instance to solve the problem.
      */
@@ -89,6 +50,11 @@ public class DlxBuilder<T> {
         private int maxNumberOfSolutionsToStore = 1;
         private boolean countAllSolutions = false;
         private int statusLogStepWidth = Integer.MAX_VALUE;
+        private int portfolioSize = 0;
+        private long randomSeed = 0;
+        private long restartUnit = 0;
+        private SolutionSink solutionSink = null;
+        private StatsLevel statsLevel = StatsLevel.PER_LEVEL;
 
         DlxConfig() {
         }
@@ -190,6 +156,7 @@ public class DlxBuilder<T> {
             }
             this.numberOfThreads = numberOfThreads;
             this.forkingLevel = numberOfThreads > 1 ? forkingLevel : -1;
+            this.portfolioSize = 0;
             return this;
         }
 
@@ -207,6 +174,89 @@ public class DlxBuilder<T> {
             return this;
         }
 
+        /**
+         * Enable the portfolio mode using as many threads as available processors. Each thread searches its own copy
+         * of the matrix with a differently randomized order of rows and choice of columns. The first thread that finds
+         * a solution wins and stops the others. This avoids extremely long run times caused by an unlucky search order
+         * if only a single solution is needed.
+         * <p>
+         *     The portfolio mode cannot be combined with multithreading, with {@link #countAllSolutions(boolean)} or
+         *     with storing more than one solution. By default, the portfolio mode is disabled.
+         * </p>
+         *
+         * @param randomSeed the seed for the randomization making runs reproducible
+         * @see #enablePortfolio(int, long)
+         * @see #enableLubyRestarts(long)
+         */
+        public DlxConfig enablePortfolio(long randomSeed) {
+            return enablePortfolio(Runtime.getRuntime().availableProcessors(), randomSeed);
+        }
+
+        /**
+         * Enable the portfolio mode. Each thread searches its own copy of the matrix with a differently randomized
+         * order of rows and choice of columns. The first thread that finds a solution wins and stops the others. This
+         * avoids extremely long run times caused by an unlucky search order if only a single solution is needed.
+         * <p>
+         *     The portfolio mode cannot be combined with multithreading, with {@link #countAllSolutions(boolean)} or
+         *     with storing more than one solution. By default, the portfolio mode is disabled.
+         * </p>
+         *
+         * @param numberOfThreads how many threads should search in parallel
+         * @param randomSeed      the seed for the randomization making runs reproducible
+         * @see #enablePortfolio(long)
+         * @see #enableLubyRestarts(long)
+         */
+        public DlxConfig enablePortfolio(int numberOfThreads, long randomSeed) {
+            if (numberOfThreads < 1) {
+                throw new IllegalArgumentException("Number of threads must be greater than 0");
+            }
+            this.portfolioSize = numberOfThreads;
+            this.randomSeed = randomSeed;
+            this.numberOfThreads = 1;
+            this.forkingLevel = -1;
+            return this;
+        }
+
+        /**
+         * Disable the portfolio mode. This is the default.
+         *
+         * @see #enablePortfolio(int, long)
+         */
+        public DlxConfig disablePortfolio() {
+            this.portfolioSize = 0;
+            return this;
+        }
+
+        /**
+         * Restart the search of each thread of the portfolio mode with a new random order after a number of visited
+         * nodes given by the Luby sequence {@code 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...} multiplied by
+         * {@code restartUnit}. Only effective if the portfolio mode is enabled.
+         * <p>
+         *     By default, restarts are disabled.
+         * </p>
+         *
+         * @param restartUnit the number of visited nodes of the shortest run
+         * @see #enablePortfolio(int, long)
+         * @see #disableRestarts()
+         */
+        public DlxConfig enableLubyRestarts(long restartUnit) {
+            if (restartUnit < 1) {
+                throw new IllegalArgumentException("Restart unit must be greater than 0");
+            }
+            this.restartUnit = restartUnit;
+            return this;
+        }
+
+        /**
+         * Disable restarts of the portfolio mode. This is the default.
+         *
+         * @see #enableLubyRestarts(long)
+         */
+        public DlxConfig disableRestarts() {
+            this.restartUnit = 0;
+            return this;
+        }
+
         /**
          * Define how many solutions should be stored and returned by {@link Dlx#solve()}.
          * <p>
@@ -223,6 +273,22 @@ public class DlxBuilder<T> {
             return this;
         }
 
+        /**
+         * Pass the solutions to the given sink instead of keeping them in memory. Up to
+         * {@link #maxNumberOfSolutionsToStore(int)} solutions are passed to the sink. {@link Dlx#solve()} returns an
+         * empty list in that case. The sink has to be closed after solving.
+         * <p>
+         *     By default, solutions are kept in memory.
+         * </p>
+         *
+         * @param solutionSink the sink receiving all solutions or {@code null} to keep solutions in memory
+         * @see FileSolutionSink
+         */
+        public DlxConfig solutionSink(SolutionSink solutionSink) {
+            this.solutionSink = solutionSink;
+            return this;
+        }
+
         /**
          * Continue to search after {@link #maxNumberOfSolutionsToStore(int)} have been found. Use if you are interested
          * in the total number of solutions, that can be retrieved using {@link Dlx#getStats()}.
@@ -264,19 +330,41 @@ public class DlxBuilder<T> {
             return this;
         }
 
+        /**
+         * Choose which statistics are collected during {@link Dlx#solve()}. Use {@link StatsLevel#NONE} for the
+         * fastest search or {@link StatsLevel#FULL} to additionally record JFR events.
+         * <p>
+         *     Defaults to {@link StatsLevel#PER_LEVEL}.
+         * </p>
+         *
+         * @param statsLevel the statistics to collect
+         * @see Dlx#getStats()
+         */
+        public DlxConfig statsLevel(StatsLevel statsLevel) {
+            if (statsLevel == null) {
+                throw new IllegalArgumentException("statsLevel cannot be null");
+            }
+            this.statsLevel = statsLevel;
+            return this;
+        }
+
         /**
          * Call this method after the configuration is done.
          */
         public <T> DlxBuilder<T> createChoiceBuilder() {
-            return new DlxBuilder<>(createDlx(), numberOfConstraints);
+            return new DlxBuilder<>(createDlx());
         }
 
         private <T> Dlx<T> createDlx() {
             if (numberOfConstraints == null) {
                 throw new IllegalArgumentException("Number of constraints must be set");
             }
+            if (portfolioSize > 0 && (countAllSolutions || maxNumberOfSolutionsToStore > 1)) {
+                throw new IllegalArgumentException("The portfolio mode can only be used to find a single solution");
+            }
             return new Dlx<>(numberOfConstraints, indicesOfSecondaryConstraints, forkingLevel, numberOfThreads,
-                    maxNumberOfSolutionsToStore, countAllSolutions, statusLogStepWidth);
+                    maxNumberOfSolutionsToStore, countAllSolutions, statusLogStepWidth, portfolioSize, randomSeed,
+                    restartUnit, solutionSink, statsLevel);
         }
 
         private static Set<Integer> generateSequence(int numberOfPrimaryConstraints, int numberOfSecondaryConstraints) {
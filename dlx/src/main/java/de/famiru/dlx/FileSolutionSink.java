@@ -0,0 +1,459 @@
+package de.famiru.dlx;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link SolutionSink} writing all solutions to a file. Each search thread encodes solutions into a buffer of fixed
+ * size. Full buffers are written by a background thread and exchanged for one of a limited number of spare buffers,
+ * so search threads never wait for I/O unless all spare buffers are in use. The memory usage does not depend on the
+ * number of solutions.
+ * <p>
+ *     The sink must be closed after solving to write the remaining solutions. Afterwards, no more solutions can be
+ *     added. Solutions can be read again using {@link #read(Path, Consumer)}.
+ * </p>
+ */
+public class FileSolutionSink implements SolutionSink {
+    private static final int MAGIC = 0x444c584c; // "DLXL"
+    private static final int VERSION = 1;
+    private static final int FLAG_DELTA_ENCODING = 1;
+    private static final int FLAG_COMPRESSION = 2;
+    private static final int FILE_HEADER_SIZE = 6;
+    private static final int BLOCK_HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final boolean deltaEncoding;
+    private final boolean compression;
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<Block> pendingBlocks = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile IOException failure = null;
+    private volatile boolean closed = false;
+
+    private FileSolutionSink(Path file, boolean deltaEncoding, boolean compression, int bufferSize,
+                             int numberOfBuffers) throws IOException {
+        this.deltaEncoding = deltaEncoding;
+        this.compression = compression;
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < numberOfBuffers; i++) {
+            freeBuffers.add(ByteBuffer.allocate(bufferSize));
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE)
+                .putInt(MAGIC)
+                .put((byte) VERSION)
+                .put((byte) ((deltaEncoding ? FLAG_DELTA_ENCODING : 0) | (compression ? FLAG_COMPRESSION : 0)))
+                .flip();
+        try {
+            writeFully(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.writer = new Thread(this::writeBlocks, "dlx-solution-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Open a file to write solutions to using the default configuration.
+     *
+     * @param file the file to write to. An existing file gets overwritten.
+     */
+    public static FileSolutionSink open(Path file) throws IOException {
+        return configure(file).open();
+    }
+
+    /**
+     * Start configuring a {@code FileSolutionSink} writing solutions to the given file.
+     *
+     * @param file the file to write to. An existing file gets overwritten.
+     */
+    public static Config configure(Path file) {
+        return new Config(file);
+    }
+
+    /**
+     * Read all solutions from a file that has been written by a {@code FileSolutionSink}.
+     *
+     * @param file     the file to read from
+     * @param consumer receives the row indices of each solution
+     */
+    public static void read(Path file, Consumer<int[]> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            if (!readFully(channel, header) || header.getInt() != MAGIC || header.get() != VERSION) {
+                throw new IOException("Not a solutions file: " + file);
+            }
+            int flags = header.get();
+            boolean deltaEncoding = (flags & FLAG_DELTA_ENCODING) != 0;
+            boolean compression = (flags & FLAG_COMPRESSION) != 0;
+            Inflater inflater = compression ? new Inflater() : null;
+            try {
+                ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+                while (readFully(channel, blockHeader)) {
+                    int numberOfSolutions = blockHeader.getInt();
+                    int rawLength = blockHeader.getInt();
+                    ByteBuffer stored = ByteBuffer.allocate(blockHeader.getInt());
+                    if (!readFully(channel, stored)) {
+                        throw new EOFException("Unexpected end of file " + file);
+                    }
+                    ByteBuffer raw = compression ? inflate(inflater, stored, rawLength) : stored;
+                    for (int i = 0; i < numberOfSolutions; i++) {
+                        consumer.accept(decode(raw, deltaEncoding));
+                    }
+                    blockHeader.clear();
+                }
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static ByteBuffer inflate(Inflater inflater, ByteBuffer stored, int rawLength) throws IOException {
+        ByteBuffer raw = ByteBuffer.allocate(rawLength);
+        inflater.reset();
+        inflater.setInput(stored);
+        try {
+            while (raw.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(raw) == 0 && inflater.needsInput()) {
+                    throw new EOFException("Truncated compressed block");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        return raw.flip();
+    }
+
+    private static int[] decode(ByteBuffer buffer, boolean deltaEncoding) {
+        if (!deltaEncoding) {
+            int[] rowIndices = new int[buffer.getInt()];
+            for (int i = 0; i < rowIndices.length; i++) {
+                rowIndices[i] = buffer.getInt();
+            }
+            return rowIndices;
+        }
+        int[] rowIndices = new int[readVarint(buffer)];
+        int rowIndex = 0;
+        for (int i = 0; i < rowIndices.length; i++) {
+            rowIndex += readVarint(buffer);
+            rowIndices[i] = rowIndex;
+        }
+        return rowIndices;
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    @Override
+    public Buffer createBuffer() {
+        return new FileBuffer();
+    }
+
+    /**
+     * Write all solutions that have been passed on by the buffers and close the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pendingBlocks.add(Block.END);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            if (failure == null) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeBlocks() {
+        Deflater deflater = compression ? new Deflater() : null;
+        ByteBuffer compressed = compression ? ByteBuffer.allocate(bufferSize) : null;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        try {
+            while (true) {
+                Block block = pendingBlocks.take();
+                if (block == Block.END) {
+                    return;
+                }
+                ByteBuffer data = block.data().flip();
+                if (failure == null) {
+                    try {
+                        int rawLength = data.remaining();
+                        ByteBuffer stored = data;
+                        if (compression) {
+                            compressed = deflate(deflater, data, compressed);
+                            stored = compressed;
+                        }
+                        blockHeader.clear()
+                                .putInt(block.numberOfSolutions())
+                                .putInt(rawLength)
+                                .putInt(stored.remaining())
+                                .flip();
+                        writeFully(blockHeader, stored);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                if (data.capacity() == bufferSize) {
+                    freeBuffers.add(data.clear());
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Writing solutions has been interrupted", e);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static ByteBuffer deflate(Deflater deflater, ByteBuffer data, ByteBuffer target) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        target.clear();
+        while (!deflater.finished()) {
+            if (!target.hasRemaining()) {
+                target = ByteBuffer.allocate(2 * target.capacity()).put(target.flip());
+            }
+            deflater.deflate(target);
+        }
+        return target.flip();
+    }
+
+    private void writeFully(ByteBuffer... buffers) throws IOException {
+        long remaining = Arrays.stream(buffers).mapToLong(ByteBuffer::remaining).sum();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private void verifyOpen() {
+        if (closed) {
+            throw new IllegalStateException("The sink has already been closed");
+        }
+    }
+
+    private void verifyNoFailure() {
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException("Writing solutions failed", e);
+        }
+    }
+
+    private record Block(ByteBuffer data, int numberOfSolutions) {
+        private static final Block END = new Block(null, 0);
+    }
+
+    private class FileBuffer implements Buffer {
+        private ByteBuffer current = null;
+        private int numberOfSolutions = 0;
+        private int[] sorted = new int[0];
+        private boolean ownBufferAllocated = false;
+
+        @Override
+        public void add(int[] rowIndices, int length) {
+            verifyOpen();
+            verifyNoFailure();
+            int maxEncodedLength = 5 * (length + 1);
+            if (current != null && current.remaining() < maxEncodedLength) {
+                flush();
+            }
+            if (current == null) {
+                current = acquireBuffer(maxEncodedLength);
+            }
+            if (deltaEncoding) {
+                if (sorted.length < length) {
+                    sorted = new int[length];
+                }
+                System.arraycopy(rowIndices, 0, sorted, 0, length);
+                Arrays.sort(sorted, 0, length);
+                writeVarint(current, length);
+                int previous = 0;
+                for (int i = 0; i < length; i++) {
+                    writeVarint(current, sorted[i] - previous);
+                    previous = sorted[i];
+                }
+            } else {
+                current.putInt(length);
+                for (int i = 0; i < length; i++) {
+                    current.putInt(rowIndices[i]);
+                }
+            }
+            numberOfSolutions++;
+        }
+
+        private ByteBuffer acquireBuffer(int minimumSize) {
+            if (minimumSize > bufferSize) {
+                return ByteBuffer.allocate(minimumSize);
+            }
+            // every buffer brings one buffer into circulation, so a search thread never waits for a buffer that is
+            // held by another thread
+            if (!ownBufferAllocated) {
+                ownBufferAllocated = true;
+                return ByteBuffer.allocate(bufferSize);
+            }
+            try {
+                return freeBuffers.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (current != null) {
+                verifyOpen();
+                pendingBlocks.add(new Block(current, numberOfSolutions));
+                current = null;
+                numberOfSolutions = 0;
+            }
+        }
+    }
+
+    public static class Config {
+        private final Path file;
+        private boolean deltaEncoding = true;
+        private boolean compression = false;
+        private int bufferSize = 1 << 16;
+        private int numberOfBuffers = 2 * Runtime.getRuntime().availableProcessors() + 2;
+
+        private Config(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Store the row indices of each solution sorted in ascending order as variable length differences instead of
+         * storing each row index using four bytes. The order of the row indices within a solution gets lost.
+         * <p>
+         *     Defaults to {@code true}.
+         * </p>
+         *
+         * @param deltaEncoding set to {@code false} to store each row index using four bytes
+         */
+        public Config deltaEncoding(boolean deltaEncoding) {
+            this.deltaEncoding = deltaEncoding;
+            return this;
+        }
+
+        /**
+         * Compress each block of solutions using the deflate algorithm before writing it.
+         * <p>
+         *     Defaults to {@code false}.
+         * </p>
+         *
+         * @param compression set to {@code true} to compress the file
+         */
+        public Config compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Define the size of the buffers in bytes that are filled by the search threads and written as a block.
+         * <p>
+         *     Defaults to 64 KiB.
+         * </p>
+         *
+         * @param bufferSize the size of a buffer in bytes
+         */
+        public Config bufferSize(int bufferSize) {
+            if (bufferSize < 64) {
+                throw new IllegalArgumentException("Buffer size must be at least 64 bytes");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Define how many spare buffers may exist in addition to the buffer of each search thread. Search threads have
+         * to wait for a buffer to be written if all spare buffers are in use.
+         * <p>
+         *     Defaults to twice the number of available processors plus two.
+         * </p>
+         *
+         * @param numberOfBuffers the number of spare buffers
+         */
+        public Config numberOfBuffers(int numberOfBuffers) {
+            if (numberOfBuffers < 2) {
+                throw new IllegalArgumentException("Number of buffers must be at least 2");
+            }
+            this.numberOfBuffers = numberOfBuffers;
+            return this;
+        }
+
+        /**
+         * Call this method after the configuration is done.
+         */
+        public FileSolutionSink open() throws IOException {
+            return new FileSolutionSink(file, deltaEncoding, compression, bufferSize, numberOfBuffers);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package de.famiru.dlx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.famiru.dlx.ForkSearch")
+@Label("Fork Search")
+@Category("DLX")
+@Description("Searching a subtree of the search tree within another thread")
+final class ForkSearchEvent extends jdk.jfr.Event {
+    @Label("Level")
+    int level;
+
+    @Label("Row Index")
+    @Description("The row selected at the forking level")
+    int rowIndex;
+
+    @Label("Number of Solutions")
+    int numberOfSolutions;
+
+    @Label("Visited Nodes")
+    long visitedNodes;
+}
@@ -0,0 +1,19 @@
+package de.famiru.dlx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.famiru.dlx.ForkSubmitted")
+@Label("Fork Submitted")
+@Category("DLX")
+@Description("A subtree of the search tree has been handed over to another thread")
+final class ForkSubmittedEvent extends jdk.jfr.Event {
+    @Label("Level")
+    int level;
+
+    @Label("Row Index")
+    @Description("The row selected at the forking level")
+    int rowIndex;
+}
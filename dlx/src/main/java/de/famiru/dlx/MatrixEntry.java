@@ -4,13 +4,13 @@ import java.util.*;
 
 import static java.util.Objects.requireNonNull;
 
-class MatrixEntry<T> {
-    private final T data;
-    private final MatrixEntry<T> columnHead;
-    private MatrixEntry<T> left;
-    private MatrixEntry<T> right;
-    private MatrixEntry<T> upper;
-    private MatrixEntry<T> lower;
+class MatrixEntry {
+    private final int rowIndex;
+    private final MatrixEntry columnHead;
+    private MatrixEntry left;
+    private MatrixEntry right;
+    private MatrixEntry upper;
+    private MatrixEntry lower;
     private int rowCount;
 
     // constructor for column header entries
@@ -21,40 +21,40 @@ class MatrixEntry<T> {
         upper = this;
         lower = this;
         columnHead = this;
-        this.data = null;
+        this.rowIndex = -1;
     }
 
     // constructor for regular entries
-    MatrixEntry(T data, MatrixEntry<T> columnHead) {
+    MatrixEntry(int rowIndex, MatrixEntry columnHead) {
         left = this;
         right = this;
         upper = this;
         lower = this;
         this.columnHead = requireNonNull(columnHead);
-        this.data = requireNonNull(data);
+        this.rowIndex = rowIndex;
     }
 
-    MatrixEntry<T> copy(Map<MatrixEntry<T>, MatrixEntry<T>> mapping, Set<MatrixEntry<T>> visited) {
+    MatrixEntry copy(Map<MatrixEntry, MatrixEntry> mapping, Set<MatrixEntry> visited) {
         if (visited.contains(this)) {
             return mapping.get(this);
         }
 
-        Deque<MatrixEntry<T>> queue = new LinkedList<>();
+        Deque<MatrixEntry> queue = new LinkedList<>();
         queue.add(this);
 
         while (!queue.isEmpty()) {
-            MatrixEntry<T> current = queue.remove();
-            MatrixEntry<T> copy;
+            MatrixEntry current = queue.remove();
+            MatrixEntry copy;
             if (current.isColumnHead()) {
-                copy = mapping.computeIfAbsent(current, k -> new MatrixEntry<>());
+                copy = mapping.computeIfAbsent(current, k -> new MatrixEntry());
             } else {
-                MatrixEntry<T> columnHead = mapping.get(current.columnHead);
+                MatrixEntry columnHead = mapping.get(current.columnHead);
                 if (columnHead == null) {
-                    columnHead = new MatrixEntry<>();
+                    columnHead = new MatrixEntry();
                     mapping.put(current.columnHead, columnHead);
                     queue.addFirst(columnHead);
                 }
-                copy = new MatrixEntry<>(current.data, columnHead);
+                copy = new MatrixEntry(current.rowIndex, columnHead);
             }
             mapping.put(current, copy);
 
@@ -72,9 +72,9 @@ class MatrixEntry<T> {
             }
         }
 
-        for (Map.Entry<MatrixEntry<T>, MatrixEntry<T>> entry : mapping.entrySet()) {
-            MatrixEntry<T> from = entry.getKey();
-            MatrixEntry<T> to = entry.getValue();
+        for (Map.Entry<MatrixEntry, MatrixEntry> entry : mapping.entrySet()) {
+            MatrixEntry from = entry.getKey();
+            MatrixEntry to = entry.getValue();
             to.upper = mapping.get(from.upper);
             to.lower = mapping.get(from.lower);
             to.right = mapping.get(from.right);
@@ -84,14 +84,31 @@ class MatrixEntry<T> {
         return mapping.get(this);
     }
 
-    void insertBefore(MatrixEntry<T> entry) {
+    // reorders the rows of this column randomly; must only be called on column heads
+    void shuffleRows(SplittableRandom random) {
+        List<MatrixEntry> entries = new ArrayList<>(rowCount);
+        for (MatrixEntry i = lower; i != this; i = i.lower) {
+            entries.add(i);
+        }
+        Collections.shuffle(entries, new Random(random.nextLong()));
+        MatrixEntry previous = this;
+        for (MatrixEntry entry : entries) {
+            previous.lower = entry;
+            entry.upper = previous;
+            previous = entry;
+        }
+        previous.lower = this;
+        upper = previous;
+    }
+
+    void insertBefore(MatrixEntry entry) {
         entry.right = this;
         entry.left = left;
         left.right = entry;
         left = entry;
     }
 
-    void insertAbove(MatrixEntry<T> entry) {
+    void insertAbove(MatrixEntry entry) {
         entry.lower = this;
         entry.upper = upper;
         upper.lower = entry;
@@ -99,18 +116,29 @@ class MatrixEntry<T> {
         columnHead.rowCount++;
     }
 
-    MatrixEntry<T> getLeft() {
+    // permanently removes this entry from its column
+    void removeFromColumn() {
+        upper.lower = lower;
+        lower.upper = upper;
+        columnHead.rowCount--;
+    }
+
+    MatrixEntry getLeft() {
         return left;
     }
 
-    MatrixEntry<T> getRight() {
+    MatrixEntry getRight() {
         return right;
     }
 
-    MatrixEntry<T> getLower() {
+    MatrixEntry getLower() {
         return lower;
     }
 
+    MatrixEntry getColumnHead() {
+        return columnHead;
+    }
+
     private boolean isColumnHead() {
         return columnHead == this;
     }
@@ -119,22 +147,22 @@ class MatrixEntry<T> {
         return rowCount;
     }
 
-    public T getData() {
-        return data;
+    int getRowIndex() {
+        return rowIndex;
     }
 
     @Override
     public String toString() {
-        return Objects.requireNonNullElse(data, "Head").toString();
+        return isColumnHead() ? "Head" : "Row " + rowIndex;
     }
 
     int coverColumn() {
         int updates = 1;
         columnHead.right.left = columnHead.left;
         columnHead.left.right = columnHead.right;
-        MatrixEntry<T> i = columnHead.lower;
+        MatrixEntry i = columnHead.lower;
         while (i != columnHead) {
-            MatrixEntry<T> j = i.right;
+            MatrixEntry j = i.right;
             while (j != i) {
                 updates++;
                 j.lower.upper = j.upper;
@@ -147,10 +175,27 @@ class MatrixEntry<T> {
         return updates;
     }
 
+    // same as coverColumn() without counting updates
+    void coverColumnUncounted() {
+        columnHead.right.left = columnHead.left;
+        columnHead.left.right = columnHead.right;
+        MatrixEntry i = columnHead.lower;
+        while (i != columnHead) {
+            MatrixEntry j = i.right;
+            while (j != i) {
+                j.lower.upper = j.upper;
+                j.upper.lower = j.lower;
+                j.columnHead.rowCount--;
+                j = j.right;
+            }
+            i = i.lower;
+        }
+    }
+
     void uncoverColumn() {
-        MatrixEntry<T> i = columnHead.upper;
+        MatrixEntry i = columnHead.upper;
         while (i != columnHead) {
-            MatrixEntry<T> j = i.left;
+            MatrixEntry j = i.left;
             while (j != i) {
                 j.columnHead.rowCount++;
                 j.lower.upper = j;
@@ -0,0 +1,37 @@
+package de.famiru.dlx;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Receives the solutions found by {@link Dlx#solve()} as row indices (see {@link Dlx#addChoice(Object, List)})
+ * instead of storing them in memory.
+ * <p>
+ *     Every search thread gets its own {@link Buffer}, so implementations can collect solutions without
+ *     synchronization. The sink itself is not closed by {@link Dlx}.
+ * </p>
+ *
+ * @see DlxBuilder.DlxConfig#solutionSink(SolutionSink)
+ * @see FileSolutionSink
+ */
+public interface SolutionSink extends Closeable {
+    /**
+     * Create a new buffer that is used by a single search thread.
+     */
+    Buffer createBuffer();
+
+    interface Buffer {
+        /**
+         * Add a solution to the buffer. The array must not be retained, it gets reused for the next solution.
+         *
+         * @param rowIndices the row indices of the solution
+         * @param length     the number of row indices of the solution at the beginning of the array
+         */
+        void add(int[] rowIndices, int length);
+
+        /**
+         * Pass on all solutions that have been added. Gets called when the search thread has finished.
+         */
+        void flush();
+    }
+}
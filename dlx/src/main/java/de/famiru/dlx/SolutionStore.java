@@ -0,0 +1,73 @@
+package de.famiru.dlx;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Stores the row indices of all solutions within a single array to avoid the overhead of a list per solution.
+class SolutionStore {
+    private int[] rowIndices = new int[64];
+    private int[] ends = new int[8];
+    private int size = 0;
+
+    void add(int[] solution, int length) {
+        int start = size == 0 ? 0 : ends[size - 1];
+        ensureCapacity(start + length, size + 1);
+        System.arraycopy(solution, 0, rowIndices, start, length);
+        ends[size++] = start + length;
+    }
+
+    void addAll(SolutionStore other) {
+        int start = size == 0 ? 0 : ends[size - 1];
+        int otherLength = other.size == 0 ? 0 : other.ends[other.size - 1];
+        ensureCapacity(start + otherLength, size + other.size);
+        System.arraycopy(other.rowIndices, 0, rowIndices, start, otherLength);
+        for (int i = 0; i < other.size; i++) {
+            ends[size++] = start + other.ends[i];
+        }
+    }
+
+    private void ensureCapacity(int numberOfRowIndices, int numberOfSolutions) {
+        if (rowIndices.length < numberOfRowIndices) {
+            rowIndices = Arrays.copyOf(rowIndices, Math.max(numberOfRowIndices, 2 * rowIndices.length));
+        }
+        if (ends.length < numberOfSolutions) {
+            ends = Arrays.copyOf(ends, Math.max(numberOfSolutions, 2 * ends.length));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int length(int index) {
+        return ends[index] - start(index);
+    }
+
+    int rowIndex(int index, int position) {
+        return rowIndices[start(index) + position];
+    }
+
+    int[] get(int index) {
+        return Arrays.copyOfRange(rowIndices, start(index), ends[index]);
+    }
+
+    private int start(int index) {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+    List<int[]> asList() {
+        return new AbstractList<>() {
+            @Override
+            public int[] get(int index) {
+                return SolutionStore.this.get(Objects.checkIndex(index, size));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
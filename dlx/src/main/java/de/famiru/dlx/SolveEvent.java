@@ -0,0 +1,25 @@
+package de.famiru.dlx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("de.famiru.dlx.Solve")
+@Label("Solve")
+@Category("DLX")
+@Description("Solving an exact cover problem using Dlx#solve()")
+final class SolveEvent extends jdk.jfr.Event {
+    @Label("Number of Choices")
+    int numberOfChoices;
+
+    @Label("Subproblem Depth")
+    @Description("The number of choices already selected by the solved subproblem")
+    int subproblemDepth;
+
+    @Label("Number of Solutions")
+    int numberOfSolutions;
+
+    @Label("Visited Nodes")
+    long visitedNodes;
+}
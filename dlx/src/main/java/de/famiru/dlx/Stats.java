@@ -1,11 +1,102 @@
 package de.famiru.dlx;
 
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Statistics of a {@link Dlx} run. Which of the counters are collected depends on the configured {@link StatsLevel}:
+ * the per level lists are empty below {@link StatsLevel#PER_LEVEL}, the totals are zero for {@link StatsLevel#NONE}.
+ */
 public record Stats(int numberOfChoices, int numberOfPrimaryConstraints, int numberOfSecondaryConstraints,
                     int numberOfElements, int numberOfSolutions,
-                    List<Long> numberOfUpdates, List<Long> numberOfVisitedNodes) {
+                    List<Long> numberOfUpdates, List<Long> numberOfVisitedNodes,
+                    long totalNumberOfUpdates, long totalNumberOfVisitedNodes) {
+    private static final int MAGIC = 0x444c5853; // "DLXS"
+    private static final int VERSION = 1;
+
     public int numberOfConstraints() {
         return numberOfPrimaryConstraints + numberOfSecondaryConstraints;
     }
+
+    /**
+     * Combine the statistics of two distinct subproblems of the same matrix, e.g. after solving the
+     * {@link Subproblem}s created by {@link Dlx#partition(int)} independently.
+     *
+     * @param other the statistics of another subproblem
+     * @return the statistics of both subproblems together
+     */
+    public Stats merge(Stats other) {
+        return new Stats(numberOfChoices, numberOfPrimaryConstraints, numberOfSecondaryConstraints, numberOfElements,
+                numberOfSolutions + other.numberOfSolutions,
+                sum(numberOfUpdates, other.numberOfUpdates), sum(numberOfVisitedNodes, other.numberOfVisitedNodes),
+                totalNumberOfUpdates + other.totalNumberOfUpdates,
+                totalNumberOfVisitedNodes + other.totalNumberOfVisitedNodes);
+    }
+
+    private static List<Long> sum(List<Long> a, List<Long> b) {
+        List<Long> result = new ArrayList<>(Math.max(a.size(), b.size()));
+        for (int i = 0; i < Math.max(a.size(), b.size()); i++) {
+            long valueA = i < a.size() ? a.get(i) : 0;
+            long valueB = i < b.size() ? b.get(i) : 0;
+            result.add(valueA + valueB);
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Read statistics that have previously been written using {@link #writeTo(Path)}.
+     *
+     * @param file the file to read from
+     */
+    public static Stats readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a statistics file: " + file);
+            }
+            return new Stats(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    readList(in), readList(in), in.readLong(), in.readLong());
+        }
+    }
+
+    private static List<Long> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Long> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(in.readLong());
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Write these statistics to a file, so they can be merged by a different process.
+     *
+     * @param file the file to write to. An existing file gets overwritten.
+     * @see #readFrom(Path)
+     * @see #merge(Stats)
+     */
+    public void writeTo(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(numberOfChoices);
+            out.writeInt(numberOfPrimaryConstraints);
+            out.writeInt(numberOfSecondaryConstraints);
+            out.writeInt(numberOfElements);
+            out.writeInt(numberOfSolutions);
+            writeList(out, numberOfUpdates);
+            writeList(out, numberOfVisitedNodes);
+            out.writeLong(totalNumberOfUpdates);
+            out.writeLong(totalNumberOfVisitedNodes);
+        }
+    }
+
+    private static void writeList(DataOutputStream out, List<Long> list) throws IOException {
+        out.writeInt(list.size());
+        for (long value : list) {
+            out.writeLong(value);
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package de.famiru.dlx;
+
+/**
+ * Defines how detailed the statistics collected while searching are.
+ *
+ * @see DlxBuilder.DlxConfig#statsLevel(StatsLevel)
+ * @see Stats
+ */
+public enum StatsLevel {
+    /**
+     * Only count solutions. The search does not count updates and visited nodes at all.
+     */
+    NONE,
+    /**
+     * Count the total number of updates and visited nodes.
+     */
+    TOTALS,
+    /**
+     * Count the number of updates and visited nodes for each level of the search tree.
+     */
+    PER_LEVEL,
+    /**
+     * Like {@link #PER_LEVEL}, but additionally emit JDK Flight Recorder events for solving and for each fork.
+     */
+    FULL
+}
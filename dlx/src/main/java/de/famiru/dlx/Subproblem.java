@@ -0,0 +1,120 @@
+package de.famiru.dlx;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An independent part of the search tree of an exact cover problem. It is described by the row indices (see
+ * {@link Dlx#addChoice(Object, List)}) of the choices that have already been selected on the way from the root of the
+ * search tree down to the subproblem.
+ * <p>
+ *     Subproblems are created by {@link Dlx#partition(int)} and can be solved using {@link Dlx#solve(Subproblem)} by
+ *     any {@code Dlx} instance that has been set up with exactly the same choices in the same order, e.g. within a
+ *     separate process. A fingerprint of the matrix is stored along with the row indices to verify that.
+ * </p>
+ */
+public final class Subproblem {
+    private static final int MAGIC = 0x444c5850; // "DLXP"
+    private static final int VERSION = 1;
+
+    // fingerprint of the matrix
+    private final int numberOfRows;
+    private final int numberOfConstraints;
+    private final long matrixHash;
+    private final int[] rowIndices;
+
+    Subproblem(int numberOfRows, int numberOfConstraints, long matrixHash, int[] rowIndices) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfConstraints = numberOfConstraints;
+        this.matrixHash = matrixHash;
+        this.rowIndices = rowIndices;
+    }
+
+    /**
+     * Read a subproblem that has previously been written using {@link #writeTo(Path)}.
+     *
+     * @param file the file to read from
+     */
+    public static Subproblem readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a subproblem file: " + file);
+            }
+            int numberOfRows = in.readInt();
+            int numberOfConstraints = in.readInt();
+            long matrixHash = in.readLong();
+            int[] rowIndices = new int[in.readInt()];
+            for (int i = 0; i < rowIndices.length; i++) {
+                rowIndices[i] = in.readInt();
+            }
+            return new Subproblem(numberOfRows, numberOfConstraints, matrixHash, rowIndices);
+        }
+    }
+
+    /**
+     * Write this subproblem to a file, so it can be loaded by a different process using {@link #readFrom(Path)}.
+     *
+     * @param file the file to write to. An existing file gets overwritten.
+     */
+    public void writeTo(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(numberOfRows);
+            out.writeInt(numberOfConstraints);
+            out.writeLong(matrixHash);
+            out.writeInt(rowIndices.length);
+            for (int rowIndex : rowIndices) {
+                out.writeInt(rowIndex);
+            }
+        }
+    }
+
+    /**
+     * The indices of the choices that are already part of every solution of this subproblem.
+     */
+    public int[] rowIndices() {
+        return rowIndices.clone();
+    }
+
+    /**
+     * The distance of this subproblem from the root of the search tree.
+     */
+    public int depth() {
+        return rowIndices.length;
+    }
+
+    int[] getRowIndices() {
+        return rowIndices;
+    }
+
+    boolean isCreatedFrom(int numberOfRows, int numberOfConstraints, long matrixHash) {
+        return this.numberOfRows == numberOfRows && this.numberOfConstraints == numberOfConstraints
+                && this.matrixHash == matrixHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Subproblem other)) {
+            return false;
+        }
+        return numberOfRows == other.numberOfRows && numberOfConstraints == other.numberOfConstraints
+                && matrixHash == other.matrixHash && Arrays.equals(rowIndices, other.rowIndices);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(matrixHash) + Arrays.hashCode(rowIndices);
+    }
+
+    @Override
+    public String toString() {
+        return "Subproblem" + Arrays.toString(rowIndices);
+    }
+}
@@ -1,12 +1,25 @@
 package de.famiru.dlx;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DlxTest {
     @Test
@@ -62,4 +75,361 @@ class DlxTest {
                 .first(InstanceOfAssertFactories.list(String.class))
                 .containsExactlyInAnyOrder("A D H", "C E F", "B G");
     }
-}
\ No newline at end of file
+
+    @Test
+    void matrixFromFigure3ofPaper_solutionRowIndicesResolvedToChoiceData() {
+        Dlx<String> dlx = new Dlx<>(7, Set.of(), -1, 1, 10, false, Integer.MAX_VALUE);
+        dlx.addChoice("C E F", List.of(2, 4, 5));
+        dlx.addChoice("A D G", List.of(0, 3, 6));
+        dlx.addChoice("B C F", List.of(1, 2, 5));
+        dlx.addChoice("A D", List.of(0, 3));
+        dlx.addChoice("B G", List.of(1, 6));
+        dlx.addChoice("D E G", List.of(3, 4, 6));
+
+        dlx.solve();
+        List<int[]> solutions = dlx.getSolutionRowIndices();
+
+        assertThat(solutions).hasSize(1);
+        assertThat(solutions.get(0)).containsExactlyInAnyOrder(0, 3, 4);
+        assertThat(dlx.getChoiceData(4)).isEqualTo("B G");
+    }
+
+    @Test
+    void identityMatrix_solutionWithThousandsOfRows_solvedWithoutStackOverflow() {
+        int size = 15000;
+        DlxBuilder<Integer> builder = Dlx.builder()
+                .numberOfConstraints(size)
+                .createChoiceBuilder();
+        for (int i = 0; i < size; i++) {
+            builder.addChoice(i, List.of(i));
+        }
+        Dlx<Integer> dlx = builder.build();
+
+        List<List<Integer>> solutions = dlx.solve();
+
+        assertThat(solutions).hasSize(1);
+        assertThat(solutions.get(0)).hasSize(size);
+        assertThat(dlx.getStats().numberOfVisitedNodes()).hasSize(size);
+    }
+
+    @Test
+    void eightQueens_choiceRemovedAndAddedAfterSolving_solvedAgain() {
+        Dlx<String> dlx = createQueensDlx(8);
+        assertThat(dlx.solve()).hasSize(92);
+
+        dlx.removeChoice(0);
+        List<List<String>> solutionsWithoutCorner = dlx.solve();
+        int rowIndex = dlx.addChoice("0,0", List.of(0, 8, 16, 38));
+        List<List<String>> solutions = dlx.solve();
+
+        assertThat(solutionsWithoutCorner).hasSize(88).noneMatch(solution -> solution.contains("0,0"));
+        assertThat(rowIndex).isEqualTo(64);
+        assertThat(solutions).hasSize(92);
+        assertThat(dlx.getStats().numberOfChoices()).isEqualTo(64);
+    }
+
+    @Test
+    void eightQueens_solutionSinkFailedDuringSolve_matrixRestoredForNextSolve() {
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<int[]> solutions = new ArrayList<>();
+        SolutionSink sink = new SolutionSink() {
+            @Override
+            public Buffer createBuffer() {
+                return new Buffer() {
+                    @Override
+                    public void add(int[] rowIndices, int length) {
+                        if (failed.compareAndSet(false, true)) {
+                            throw new IllegalStateException("Disk full");
+                        }
+                        solutions.add(Arrays.copyOf(rowIndices, length));
+                    }
+
+                    @Override
+                    public void flush() {
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Dlx<String> dlx = createQueensDlx(8, Dlx.builder()
+                .numberOfConstraints(16, 30)
+                .maxNumberOfSolutionsToStore(Integer.MAX_VALUE)
+                .countAllSolutions(true)
+                .solutionSink(sink));
+        assertThatThrownBy(dlx::solve).isInstanceOf(IllegalStateException.class);
+
+        dlx.removeChoice(63);
+        dlx.solve();
+
+        assertThat(solutions).hasSize(88);
+        assertThat(dlx.getStats().numberOfSolutions()).isEqualTo(88);
+    }
+
+    @Test
+    void matrixFromFigure3ofPaper_choiceOfFirstSolutionRemoved_noSolutionLeft() {
+        Dlx<String> dlx = new Dlx<>(7, Set.of(), -1, 1, 10, false, Integer.MAX_VALUE);
+        dlx.addChoice("C E F", List.of(2, 4, 5));
+        dlx.addChoice("A D G", List.of(0, 3, 6));
+        dlx.addChoice("B C F", List.of(1, 2, 5));
+        int rowIndex = dlx.addChoice("A D", List.of(0, 3));
+        dlx.addChoice("B G", List.of(1, 6));
+        dlx.addChoice("D E G", List.of(3, 4, 6));
+        assertThat(dlx.solve()).hasSize(1);
+
+        dlx.removeChoice(rowIndex);
+
+        assertThat(dlx.solve()).isEmpty();
+        assertThatThrownBy(() -> dlx.removeChoice(rowIndex)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void eightQueens_partitionedSubproblemsSolvedSeparately_sameResultAsWholeProblem(@TempDir Path tempDir)
+            throws IOException {
+        Dlx<String> dlx = createQueensDlx(8);
+        List<Subproblem> subproblems = dlx.partition(2);
+        List<List<String>> expectedSolutions = dlx.solve();
+
+        List<List<String>> solutions = new ArrayList<>();
+        Stats stats = null;
+        for (int i = 0; i < subproblems.size(); i++) {
+            Path subproblemFile = tempDir.resolve("subproblem-" + i);
+            Path statsFile = tempDir.resolve("stats-" + i);
+            subproblems.get(i).writeTo(subproblemFile);
+
+            Dlx<String> worker = createQueensDlx(8);
+            solutions.addAll(worker.solve(Subproblem.readFrom(subproblemFile)));
+            worker.getStats().writeTo(statsFile);
+
+            Stats workerStats = Stats.readFrom(statsFile);
+            stats = stats == null ? workerStats : stats.merge(workerStats);
+        }
+
+        assertThat(subproblems).hasSize(42);
+        assertThat(solutions).hasSize(92).containsExactlyInAnyOrderElementsOf(expectedSolutions);
+        assertThat(stats).isNotNull();
+        assertThat(stats.numberOfSolutions()).isEqualTo(92);
+        assertThat(stats.numberOfVisitedNodes().subList(2, 8))
+                .isEqualTo(dlx.getStats().numberOfVisitedNodes().subList(2, 8));
+    }
+
+    @Test
+    void eightQueens_subproblemsSolvedByWorkerProcesses_mergedStatsMatchWholeProblem(@TempDir Path tempDir)
+            throws IOException, InterruptedException {
+        Dlx<String> dlx = createQueensDlx(8);
+        List<Subproblem> subproblems = dlx.partition(2);
+        dlx.solve();
+
+        int numberOfWorkers = 2;
+        List<Process> workers = new ArrayList<>();
+        for (int w = 0; w < numberOfWorkers; w++) {
+            List<String> command = new ArrayList<>(List.of(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    PartitionWorker.class.getName(),
+                    tempDir.resolve("stats-" + w).toString()));
+            for (int i = w; i < subproblems.size(); i += numberOfWorkers) {
+                Path subproblemFile = tempDir.resolve("subproblem-" + i);
+                subproblems.get(i).writeTo(subproblemFile);
+                command.add(subproblemFile.toString());
+            }
+            workers.add(new ProcessBuilder(command).inheritIO().start());
+        }
+
+        Stats stats = null;
+        for (int w = 0; w < numberOfWorkers; w++) {
+            Process worker = workers.get(w);
+            assertThat(worker.waitFor(1, TimeUnit.MINUTES)).isTrue();
+            assertThat(worker.exitValue()).isZero();
+            Stats workerStats = Stats.readFrom(tempDir.resolve("stats-" + w));
+            stats = stats == null ? workerStats : stats.merge(workerStats);
+        }
+
+        assertThat(stats).isNotNull();
+        assertThat(stats.numberOfSolutions()).isEqualTo(92);
+        assertThat(stats.numberOfVisitedNodes().subList(2, 8))
+                .isEqualTo(dlx.getStats().numberOfVisitedNodes().subList(2, 8));
+    }
+
+    @Test
+    void eightQueens_subproblemSolvedByModifiedMatrix_throwsException() {
+        Subproblem subproblem = createQueensDlx(8).partition(2).get(0);
+        Dlx<String> dlx = createQueensDlx(8);
+        dlx.removeChoice(63);
+        dlx.addChoice("7,7", List.of(7, 15, 30, 38));
+
+        assertThatThrownBy(() -> dlx.solve(subproblem)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void eightQueens_solutionsWrittenToCompressedFile_allSolutionsReadBack(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("solutions");
+        Dlx<String> dlx;
+        try (FileSolutionSink sink = FileSolutionSink.configure(file)
+                .compression(true)
+                .bufferSize(64)
+                .numberOfBuffers(2)
+                .open()) {
+            dlx = createQueensDlx(8, Dlx.builder()
+                    .numberOfConstraints(16, 30)
+                    .enableMultithreading(1, 4)
+                    .maxNumberOfSolutionsToStore(Integer.MAX_VALUE)
+                    .solutionSink(sink));
+            assertThat(dlx.solve()).isEmpty();
+        }
+
+        List<int[]> solutions = new ArrayList<>();
+        FileSolutionSink.read(file, solutions::add);
+
+        assertThat(solutions).hasSize(92);
+        assertThat(solutions).allSatisfy(rowIndices -> assertThat(rowIndices).hasSize(8).isSorted());
+        assertThat(dlx.getStats().numberOfSolutions()).isEqualTo(92);
+    }
+
+    @Test
+    void twentyQueens_portfolioWithRestarts_findsValidSolution() {
+        Dlx<String> dlx = createQueensDlx(20, Dlx.builder()
+                .numberOfConstraints(40, 78)
+                .enablePortfolio(4, 42)
+                .enableLubyRestarts(10));
+
+        List<List<String>> solutions = dlx.solve();
+
+        assertThat(solutions).hasSize(1);
+        assertThat(solutions.get(0)).hasSize(20);
+        assertThat(solutions.get(0).stream().map(position -> position.split(",")[1]).distinct()).hasSize(20);
+    }
+
+    @Test
+    void threeQueens_portfolioWithRestarts_noSolutionFound() {
+        Dlx<String> dlx = createQueensDlx(3, Dlx.builder()
+                .numberOfConstraints(6, 10)
+                .enablePortfolio(2, 42)
+                .enableLubyRestarts(1));
+
+        assertThat(dlx.solve()).isEmpty();
+    }
+
+    @Test
+    void portfolioMode_countAllSolutions_throwsException() {
+        DlxBuilder.DlxConfig config = Dlx.builder()
+                .numberOfConstraints(7)
+                .enablePortfolio(2, 42)
+                .countAllSolutions(true);
+
+        assertThatThrownBy(config::createChoiceBuilder).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void eightQueens_statsLevelTotals_totalsMatchPerLevelStats() {
+        Dlx<String> perLevel = createQueensDlx(8);
+        perLevel.solve();
+        Dlx<String> totals = createQueensDlx(8, Dlx.builder()
+                .numberOfConstraints(16, 30)
+                .countAllSolutions(true)
+                .statsLevel(StatsLevel.TOTALS));
+        totals.solve();
+
+        Stats expected = perLevel.getStats();
+        Stats stats = totals.getStats();
+        assertThat(stats.numberOfSolutions()).isEqualTo(92);
+        assertThat(stats.numberOfVisitedNodes()).isEmpty();
+        assertThat(stats.totalNumberOfVisitedNodes())
+                .isEqualTo(expected.totalNumberOfVisitedNodes())
+                .isEqualTo(expected.numberOfVisitedNodes().stream().mapToLong(Long::longValue).sum());
+        assertThat(stats.totalNumberOfUpdates()).isEqualTo(expected.totalNumberOfUpdates());
+    }
+
+    @Test
+    void eightQueens_statsLevelNone_onlySolutionsCounted() {
+        Dlx<String> dlx = createQueensDlx(8, Dlx.builder()
+                .numberOfConstraints(16, 30)
+                .enableMultithreading(1, 4)
+                .countAllSolutions(true)
+                .statsLevel(StatsLevel.NONE));
+        dlx.solve();
+
+        Stats stats = dlx.getStats();
+        assertThat(stats.numberOfSolutions()).isEqualTo(92);
+        assertThat(stats.numberOfUpdates()).isEmpty();
+        assertThat(stats.totalNumberOfUpdates()).isZero();
+        assertThat(stats.totalNumberOfVisitedNodes()).isZero();
+    }
+
+    @Test
+    void eightQueens_statsLevelFull_flightRecorderEventsEmitted(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("recording.jfr");
+        Dlx<String> dlx = createQueensDlx(8, Dlx.builder()
+                .numberOfConstraints(16, 30)
+                .enableMultithreading(1, 4)
+                .countAllSolutions(true)
+                .statsLevel(StatsLevel.FULL));
+        try (Recording recording = new Recording()) {
+            recording.enable("de.famiru.dlx.Solve");
+            recording.enable("de.famiru.dlx.ForkSubmitted");
+            recording.enable("de.famiru.dlx.ForkSearch");
+            recording.start();
+            dlx.solve();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+        Stats stats = dlx.getStats();
+        long rowsAtLevel1 = stats.numberOfVisitedNodes().get(1);
+        long nodesBelowLevel1 = stats.numberOfVisitedNodes().stream().skip(2).mapToLong(Long::longValue).sum();
+        List<RecordedEvent> solveEvents = events.get("de.famiru.dlx.Solve");
+        List<RecordedEvent> submittedEvents = events.get("de.famiru.dlx.ForkSubmitted");
+        List<RecordedEvent> searchEvents = events.get("de.famiru.dlx.ForkSearch");
+
+        assertThat(solveEvents).hasSize(1);
+        assertThat(solveEvents.get(0).getInt("numberOfSolutions")).isEqualTo(92);
+        assertThat(solveEvents.get(0).getLong("visitedNodes")).isEqualTo(stats.totalNumberOfVisitedNodes());
+        assertThat(submittedEvents).hasSize((int) rowsAtLevel1)
+                .allSatisfy(event -> assertThat(event.getInt("level")).isEqualTo(1));
+        assertThat(searchEvents).hasSize((int) rowsAtLevel1)
+                .allSatisfy(event -> assertThat(event.getInt("level")).isEqualTo(1));
+        assertThat(searchEvents.stream().map(event -> event.getInt("rowIndex")))
+                .containsExactlyInAnyOrderElementsOf(
+                        submittedEvents.stream().map(event -> event.getInt("rowIndex")).toList());
+        assertThat(searchEvents.stream().mapToInt(event -> event.getInt("numberOfSolutions")).sum()).isEqualTo(92);
+        assertThat(searchEvents.stream().mapToLong(event -> event.getLong("visitedNodes")).sum())
+                .isEqualTo(nodesBelowLevel1);
+    }
+
+    private static Dlx<String> createQueensDlx(int n) {
+        return createQueensDlx(n, Dlx.builder()
+                .numberOfConstraints(2 * n, 4 * n - 2)
+                .maxNumberOfSolutionsToStore(Integer.MAX_VALUE)
+                .countAllSolutions(true));
+    }
+
+    private static Dlx<String> createQueensDlx(int n, DlxBuilder.DlxConfig config) {
+        DlxBuilder<String> builder = config.createChoiceBuilder();
+        for (int row = 0; row < n; row++) {
+            for (int column = 0; column < n; column++) {
+                builder.addChoice(row + "," + column,
+                        List.of(row, n + column, 2 * n + row + column, 5 * n - 2 + row - column));
+            }
+        }
+        return builder.build();
+    }
+
+    // solves the subproblem files given as arguments within a separate process and writes the merged statistics
+    static class PartitionWorker {
+        public static void main(String[] args) throws IOException {
+            Stats stats = null;
+            for (int i = 1; i < args.length; i++) {
+                Dlx<String> worker = createQueensDlx(8);
+                worker.solve(Subproblem.readFrom(Path.of(args[i])));
+                stats = stats == null ? worker.getStats() : stats.merge(worker.getStats());
+            }
+            if (stats != null) {
+                stats.writeTo(Path.of(args[0]));
+            }
+        }
+    }
+}